@@ -0,0 +1,87 @@
+package io.github.danielreker.assembler;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Program memory parameters read from the machine description shared with the microassembler
+public class MachineDescription {
+
+    public static final String DEFAULT_PATH = "../machine.properties";
+    public static final int DEFAULT_PROGRAM_ADDRESS_BITS = 8;
+    public static final int MAX_PROGRAM_ADDRESS_BITS = 16;
+
+    public final int programAddressBits;
+
+    public MachineDescription(int programAddressBits) {
+        if (programAddressBits < 1 || programAddressBits > MAX_PROGRAM_ADDRESS_BITS) {
+            throw new IllegalArgumentException("program.addressBits must be between 1 and " + MAX_PROGRAM_ADDRESS_BITS + ", got " + programAddressBits);
+        }
+        this.programAddressBits = programAddressBits;
+    }
+
+    public static MachineDescription defaults() {
+        return new MachineDescription(DEFAULT_PROGRAM_ADDRESS_BITS);
+    }
+
+    // Reads the file given with -Dmachine=<path>, or DEFAULT_PATH if the property is not set.
+    // Only a missing DEFAULT_PATH falls back to the defaults (the original 8-bit machine).
+    public static MachineDescription load() throws IOException {
+        String explicitPath = System.getProperty("machine");
+        if (explicitPath == null && !Files.exists(Paths.get(DEFAULT_PATH))) {
+            MachineDescription machine = defaults();
+            System.out.println("No machine description at " + DEFAULT_PATH + ", using defaults: " + machine);
+            return machine;
+        }
+        return load(explicitPath != null ? explicitPath : DEFAULT_PATH);
+    }
+
+    public static MachineDescription load(String filePath) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("Machine description file not found: " + path.toAbsolutePath());
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(filePath)) {
+            properties.load(inputStream);
+        }
+        MachineDescription machine = new MachineDescription(parseInt(properties, "program.addressBits", DEFAULT_PROGRAM_ADDRESS_BITS));
+        System.out.println("Machine description " + filePath + ": " + machine);
+        return machine;
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": '" + value + "'");
+        }
+    }
+
+    // Number of bytes used by a jump or memory operand
+    public int addressBytes() {
+        return (programAddressBits + 7) / 8;
+    }
+
+    public int memorySize() {
+        return 1 << programAddressBits;
+    }
+
+    // Hex digits needed to print a program address (at least 2, as before)
+    public int addressHexDigits() {
+        return Math.max(2, (programAddressBits + 3) / 4);
+    }
+
+    @Override
+    public String toString() {
+        return "program.addressBits=" + programAddressBits;
+    }
+}
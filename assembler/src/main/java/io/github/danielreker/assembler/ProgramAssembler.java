@@ -47,8 +47,16 @@ public class ProgramAssembler {
     private final Map<String, Integer> symbolTable = new HashMap<>();
     // TreeMap ensures assembled bytes are stored by address and can be iterated in order
     private final TreeMap<Integer, Byte> assembledCode = new TreeMap<>();
+    private final MachineDescription machine;
+    private final String addressFormat; // e.g. "0x%02X" for 8-bit addresses, "0x%04X" for 16-bit
 
     public ProgramAssembler() {
+        this(MachineDescription.defaults());
+    }
+
+    public ProgramAssembler(MachineDescription machine) {
+        this.machine = machine;
+        this.addressFormat = "0x%0" + machine.addressHexDigits() + "X";
         defineInstructions();
     }
 
@@ -76,15 +84,22 @@ public class ProgramAssembler {
                 (matcher, symTable, operandAddr, line) -> // operandAddr is the address where this byte will go
                         new byte[]{parseByteOperand(matcher.group(1), symTable, line)};
 
-        addInstruction("JMP\\s+([\\w#$0-9xA-Fa-f]+)", 0x04, 1, singleByteOperandParser);
         addInstruction("MOV\\s+A\\s*,\\s*([\\w#$0-9xA-Fa-f]+)", 0x06, 1, singleByteOperandParser);
-        addInstruction("MOV\\s+SP\\s*,\\s*([\\w#$0-9xA-Fa-f]+)", 0x0D, 1, singleByteOperandParser);
+        addInstruction("MOV\\s+B\\s*,\\s*([\\w#$0-9xA-Fa-f]+)", 0x30, 1, singleByteOperandParser);
+
+        // Instructions with an ADDRESS OPERAND (program address or label, machine.addressBytes() wide, MSB first)
+        int addressBytes = machine.addressBytes();
+        InstructionDefinition.OperandAssembler addressOperandParser =
+                (matcher, symTable, operandAddr, line) ->
+                        parseAddressOperand(matcher.group(1), symTable, line, machine.programAddressBits);
+
+        addInstruction("JMP\\s+([\\w#$0-9xA-Fa-f]+)", 0x04, addressBytes, addressOperandParser);
+        addInstruction("MOV\\s+SP\\s*,\\s*([\\w#$0-9xA-Fa-f]+)", 0x0D, addressBytes, addressOperandParser);
         // For MOV A, [#addr] or MOV A, [label] - the operand is the address/label itself
-        addInstruction("MOV\\s+A\\s*,\\s*\\[\\s*([\\w#$0-9xA-Fa-f]+)\\s*\\]", 0x16, 1, singleByteOperandParser);
-        addInstruction("JZ\\s+([\\w#$0-9xA-Fa-f]+)", 0x1A, 1, singleByteOperandParser);
+        addInstruction("MOV\\s+A\\s*,\\s*\\[\\s*([\\w#$0-9xA-Fa-f]+)\\s*\\]", 0x16, addressBytes, addressOperandParser);
+        addInstruction("JZ\\s+([\\w#$0-9xA-Fa-f]+)", 0x1A, addressBytes, addressOperandParser);
         // For MOV [#addr], A or MOV [label], A - the operand is the address/label
-        addInstruction("MOV\\s+\\[\\s*([\\w#$0-9xA-Fa-f]+)\\s*\\]\\s*,\\s*A", 0x20, 1, singleByteOperandParser);
-        addInstruction("MOV\\s+B\\s*,\\s*([\\w#$0-9xA-Fa-f]+)", 0x30, 1, singleByteOperandParser);
+        addInstruction("MOV\\s+\\[\\s*([\\w#$0-9xA-Fa-f]+)\\s*\\]\\s*,\\s*A", 0x20, addressBytes, addressOperandParser);
     }
 
     private void addInstruction(String mnemonicRegex, int opcode, int operandBytes, InstructionDefinition.OperandAssembler assembler) {
@@ -113,30 +128,48 @@ public class ProgramAssembler {
     }
 
     public static byte parseByteOperand(String operandStr, Map<String, Integer> symbolTable, String originalLine) {
+        return (byte) parseOperand(operandStr, symbolTable, originalLine, 8);
+    }
+
+    // Splits an operand of the given width into ceil(bits / 8) bytes, most significant byte first
+    public static byte[] parseAddressOperand(String operandStr, Map<String, Integer> symbolTable, String originalLine, int bits) {
+        int value = parseOperand(operandStr, symbolTable, originalLine, bits);
+        byte[] bytes = new byte[(bits + 7) / 8];
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            bytes[i] = (byte) (value & 0xFF);
+            value >>= 8;
+        }
+        return bytes;
+    }
+
+    // Returns the operand value masked to the given number of bits
+    private static int parseOperand(String operandStr, Map<String, Integer> symbolTable, String originalLine, int bits) {
         operandStr = operandStr.trim();
         if (operandStr.startsWith("#")) { // Allow # for immediate, although not strictly needed if parsing context is clear
             operandStr = operandStr.substring(1);
         }
+        int min = -(1 << (bits - 1));
+        int max = (1 << bits) - 1;
 
         try {
             if (operandStr.toLowerCase().startsWith("0x")) {
                 int val = Integer.parseInt(operandStr.substring(2), 16);
-                if (val < -128 || val > 255) throw new AssemblyException("Hex operand '" + operandStr + "' out of 8-bit range", 0, originalLine);
-                return (byte) val;
+                if (val < min || val > max) throw new AssemblyException("Hex operand '" + operandStr + "' out of " + bits + "-bit range", 0, originalLine);
+                return val & max;
             } else if (Character.isDigit(operandStr.charAt(0)) || (operandStr.startsWith("-") && operandStr.length() > 1 && Character.isDigit(operandStr.charAt(1)))) {
                 int val = Integer.parseInt(operandStr);
-                if (val < -128 || val > 255) throw new AssemblyException("Decimal operand '" + operandStr + "' out of 8-bit range",0, originalLine);
-                return (byte) val;
+                if (val < min || val > max) throw new AssemblyException("Decimal operand '" + operandStr + "' out of " + bits + "-bit range",0, originalLine);
+                return val & max;
             } else { // Label
                 Integer targetAddress = symbolTable.get(operandStr.toLowerCase()); // Store/lookup labels case-insensitively
                 if (targetAddress == null) {
                     // This will be an error in Pass 2 if still not found.
                     throw new AssemblyException("Undefined label '" + operandStr + "'", 0, originalLine);
                 }
-                if (targetAddress < 0 || targetAddress > 0xFF) {
-                    throw new AssemblyException("Label '" + operandStr + "' value (0x" + Integer.toHexString(targetAddress) + ") out of 8-bit range for direct operand usage", 0, originalLine);
+                if (targetAddress < 0 || targetAddress > max) {
+                    throw new AssemblyException("Label '" + operandStr + "' value (0x" + Integer.toHexString(targetAddress) + ") out of " + bits + "-bit range for direct operand usage", 0, originalLine);
                 }
-                return (byte) (targetAddress & 0xFF);
+                return targetAddress;
             }
         } catch (NumberFormatException e) {
             throw new AssemblyException("Invalid number format for operand '" + operandStr + "'",0, originalLine);
@@ -163,7 +196,7 @@ public class ProgramAssembler {
                     throw new AssemblyException("Duplicate label definition", i + 1, originalLine);
                 }
                 symbolTable.put(label, locationCounter);
-                System.out.printf("  Label '%s' defined at 0x%02X%n", label, locationCounter);
+                System.out.printf("  Label '%s' defined at " + addressFormat + "%n", label, locationCounter);
             }
 
             line = line.trim();
@@ -184,9 +217,12 @@ public class ProgramAssembler {
             } else {
                 throw new AssemblyException("Unknown mnemonic '" + mnemonicCandidate + "'", i + 1, originalLine);
             }
+            if (locationCounter > machine.memorySize()) {
+                throw new AssemblyException("Program does not fit into " + machine.memorySize() + " bytes of program memory", i + 1, originalLine);
+            }
         }
         System.out.println("--- Pass 1 Complete. Symbol Table: ---");
-        symbolTable.forEach((k, v) -> System.out.printf("  %-10s: 0x%02X (%d)%n", k, v, v));
+        symbolTable.forEach((k, v) -> System.out.printf("  %-10s: " + addressFormat + " (%d)%n", k, v, v));
         System.out.println();
     }
 
@@ -216,7 +252,7 @@ public class ProgramAssembler {
             int currentInstructionLineNumber = i + 1; // For error reporting
 
             if (def != null && matcher != null) {
-                System.out.printf("0x%02X: Assembling '%s' -> ", locationCounter, originalLine.trim());
+                System.out.printf(addressFormat + ": Assembling '%s' -> ", locationCounter, originalLine.trim());
 
                 // 1. Add the opcode first
                 assembledCode.put(locationCounter, def.opcode);
@@ -231,7 +267,7 @@ public class ProgramAssembler {
                     throw new AssemblyException(e.getMessage(), currentInstructionLineNumber, originalLine);
                 }
             } else if (mnemonicCandidate.equalsIgnoreCase("DB")) {
-                System.out.printf("0x%02X: Assembling '%s' -> ", locationCounter, originalLine.trim());
+                System.out.printf(addressFormat + ": Assembling '%s' -> ", locationCounter, originalLine.trim());
                 String operandsPart = line.substring(2).trim();
                 String[] operandStrings = operandsPart.split(",");
                 operandBytes = new byte[operandStrings.length];
@@ -279,7 +315,7 @@ public class ProgramAssembler {
         }
         int bytesPerWord = wordSizeBits / 8;
 
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filePath)))) {
             writer.print("v2.0 raw\n");
 
             if (assembledCode.isEmpty()) {
@@ -288,45 +324,24 @@ public class ProgramAssembler {
                 return;
             }
 
-            List<String> logisimWords = new ArrayList<>();
-            int lastNonZeroWordIndex = -1; // Index in the logisimWords list
-
+            // Words are written up to the one holding the last assembled byte; Logisim zero-fills the rest
             int maxAssembledAddress = assembledCode.lastKey();
             int totalWords = (maxAssembledAddress / bytesPerWord) + 1;
-            if (maxAssembledAddress == -1 && bytesPerWord > 0) totalWords = 1; // Handle case of only a DB 0 at address 0
-
+            int memoryWords = (machine.memorySize() + bytesPerWord - 1) / bytesPerWord;
+            if (totalWords > memoryWords) {
+                throw new IllegalArgumentException("Program needs " + totalWords + " words, but program memory has only " + memoryWords);
+            }
 
             for (int wordIdx = 0; wordIdx < totalWords; wordIdx++) {
                 long currentWordValue = 0;
-                boolean thisWordHasContent = false; // True if any byte of this word was in assembledCode
-
                 for (int byteInWord = 0; byteInWord < bytesPerWord; byteInWord++) {
-                    int currentByteAddress = wordIdx * bytesPerWord + byteInWord;
-                    byte byteVal = assembledCode.getOrDefault(currentByteAddress, (byte) 0);
-                    currentWordValue = (currentWordValue << 8) | (byteVal & 0xFF);
-                    if (assembledCode.containsKey(currentByteAddress) && byteVal != 0) { // Check if it was explicitly assembled and non-zero
-                        thisWordHasContent = true;
-                    } else if (assembledCode.containsKey(currentByteAddress) && byteVal == 0) { // If it was a DB 0
-                        thisWordHasContent = true;
-                    }
-                }
-                logisimWords.add(Long.toHexString(currentWordValue));
-                if (thisWordHasContent) {
-                    lastNonZeroWordIndex = wordIdx;
+                    Byte byteVal = assembledCode.get(wordIdx * bytesPerWord + byteInWord);
+                    currentWordValue = (currentWordValue << 8) | (byteVal != null ? byteVal & 0xFF : 0);
                 }
-            }
-
-            if (lastNonZeroWordIndex == -1) { // All words are zero (or no words)
-                if (!logisimWords.isEmpty()) { // If there was at least one (zero) word
-                    writer.print("0");
-                }
-            } else {
-                for (int i = 0; i <= lastNonZeroWordIndex; i++) {
-                    writer.print(logisimWords.get(i));
-                    if (i < lastNonZeroWordIndex) {
-                        writer.print(" ");
-                    }
+                if (wordIdx > 0) {
+                    writer.print(' ');
                 }
+                writer.print(Long.toHexString(currentWordValue));
             }
             writer.println();
         }
@@ -343,8 +358,8 @@ public class ProgramAssembler {
 
         int logisimProgramMemoryWordSizeBits = 8;
 
-        ProgramAssembler assembler = new ProgramAssembler();
         try {
+            ProgramAssembler assembler = new ProgramAssembler(MachineDescription.load());
             List<String> lines = Files.lines(Paths.get(inputFile))
                     .map(String::trim) // Trim leading/trailing whitespace from all lines
                     .collect(Collectors.toList());
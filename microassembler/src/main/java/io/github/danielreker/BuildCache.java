@@ -0,0 +1,74 @@
+package io.github.danielreker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+// Content-addressed record of the last successful build.
+// The cache file holds the key of the inputs on the first line, then "<sha-256> <path>" for every output,
+// so a build is skipped only if the inputs hash to the same key and the outputs were not touched since.
+public class BuildCache {
+
+    private final Path cacheFile;
+
+    public BuildCache(String filePath) {
+        this.cacheFile = Paths.get(filePath);
+    }
+
+    public static String hash(byte[]... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Required on every Java platform
+        }
+        for (byte[] part : parts) {
+            // Length prefix keeps ("ab", "c") and ("a", "bc") apart
+            digest.update(Integer.toString(part.length).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) ':');
+            digest.update(part);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public boolean isUpToDate(String key, String... outputFiles) throws IOException {
+        if (!Files.exists(cacheFile)) {
+            return false;
+        }
+        List<String> lines = Files.readAllLines(cacheFile, StandardCharsets.UTF_8);
+        if (lines.size() != outputFiles.length + 1 || !lines.get(0).equals(key)) {
+            return false;
+        }
+        for (int i = 0; i < outputFiles.length; i++) {
+            Path output = Paths.get(outputFiles[i]);
+            if (!Files.exists(output)) {
+                return false;
+            }
+            if (!lines.get(i + 1).equals(hash(Files.readAllBytes(output)) + " " + outputFiles[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Called before outputs are rewritten, so a failed build is never reported as up to date
+    public void invalidate() throws IOException {
+        Files.deleteIfExists(cacheFile);
+    }
+
+    public void store(String key, String... outputFiles) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(key);
+        for (String outputFile : outputFiles) {
+            lines.add(hash(Files.readAllBytes(Paths.get(outputFile))) + " " + outputFile);
+        }
+        Files.write(cacheFile, lines, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.danielreker;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+// Microprogram ROM parameters read from the machine description shared with the program assembler
+public class MachineDescription {
+
+    public static final String DEFAULT_PATH = "../machine.properties";
+    public static final int DEFAULT_MICRO_ADDRESS_BITS = 6;
+    public static final int DEFAULT_MICRO_WORD_BITS = 24;
+    public static final int MAX_MICRO_ADDRESS_BITS = 16;
+    public static final int MAX_MICRO_WORD_BITS = 64;
+
+    public final int microAddressBits;
+    public final int microWordBits;
+
+    // controlBits is the number of microinstruction bits below the next-address field
+    public MachineDescription(int microAddressBits, int microWordBits, int controlBits) {
+        if (microAddressBits < 1 || microAddressBits > MAX_MICRO_ADDRESS_BITS) {
+            throw new IllegalArgumentException("micro.addressBits must be between 1 and " + MAX_MICRO_ADDRESS_BITS + ", got " + microAddressBits);
+        }
+        if (microWordBits < controlBits + microAddressBits || microWordBits > MAX_MICRO_WORD_BITS) {
+            throw new IllegalArgumentException("micro.wordBits must be between " + (controlBits + microAddressBits) + " and " + MAX_MICRO_WORD_BITS + ", got " + microWordBits);
+        }
+        this.microAddressBits = microAddressBits;
+        this.microWordBits = microWordBits;
+    }
+
+    public static MachineDescription defaults(int controlBits) {
+        return new MachineDescription(DEFAULT_MICRO_ADDRESS_BITS, DEFAULT_MICRO_WORD_BITS, controlBits);
+    }
+
+    // Reads the file given with -Dmachine=<path>, or DEFAULT_PATH if the property is not set.
+    // Only a missing DEFAULT_PATH falls back to the defaults (the original 6-bit address, 24-bit word ROM).
+    public static MachineDescription load(int controlBits) throws IOException {
+        String explicitPath = System.getProperty("machine");
+        if (explicitPath == null && !Files.exists(Paths.get(DEFAULT_PATH))) {
+            MachineDescription machine = defaults(controlBits);
+            System.out.println("No machine description at " + DEFAULT_PATH + ", using defaults: " + machine);
+            return machine;
+        }
+        return load(explicitPath != null ? explicitPath : DEFAULT_PATH, controlBits);
+    }
+
+    public static MachineDescription load(String filePath, int controlBits) throws IOException {
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            throw new IllegalArgumentException("Machine description file not found: " + path.toAbsolutePath());
+        }
+        Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(filePath)) {
+            properties.load(inputStream);
+        }
+        MachineDescription machine = new MachineDescription(
+                parseInt(properties, "micro.addressBits", DEFAULT_MICRO_ADDRESS_BITS),
+                parseInt(properties, "micro.wordBits", DEFAULT_MICRO_WORD_BITS),
+                controlBits);
+        System.out.println("Machine description " + filePath + ": " + machine);
+        return machine;
+    }
+
+    private static int parseInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": '" + value + "'");
+        }
+    }
+
+    public int maxAddress() {
+        return (1 << microAddressBits) - 1;
+    }
+
+    public int bytesPerWord() {
+        return (microWordBits + 7) / 8;
+    }
+
+    public int addressHexDigits() {
+        return Math.max(2, (microAddressBits + 3) / 4);
+    }
+
+    public int wordHexDigits() {
+        return (microWordBits + 3) / 4;
+    }
+
+    @Override
+    public String toString() {
+        return "micro.addressBits=" + microAddressBits + ", micro.wordBits=" + microWordBits;
+    }
+}
@@ -1,8 +1,20 @@
 package io.github.danielreker;
 
-import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.reader.UnicodeReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+import org.yaml.snakeyaml.scanner.ScannerImpl;
 
 import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
 import java.util.*;
 
 public class MicroAssembler {
@@ -48,77 +60,134 @@ public class MicroAssembler {
         // 1001-1111 reserved
     }
 
-    private static final int MAX_ADDRESS = 0x3F; // 6-bit address space (0-63)
+    // Bits 0-17 are control signals, the next microinstruction address starts at bit 18
+    private static final int NEXT_ADDRESS_SHIFT = 18;
+
+    private final MachineDescription machine;
+    private final int maxAddress;
+
+    public MicroAssembler() {
+        this(MachineDescription.defaults(NEXT_ADDRESS_SHIFT));
+    }
+
+    public MicroAssembler(MachineDescription machine) {
+        this.machine = machine;
+        this.maxAddress = machine.maxAddress();
+    }
 
     public static void main(String[] args) {
         String inputFile = "microcode.yaml";
         String outputFile = "microcode.bin";
         String outputLogisimImageFile = "microcode.logisimimg";
+        String cacheFile = "microcode.cache";
 
 
-        MicroAssembler assembler = new MicroAssembler();
         try {
-            List<MicroInstructionYAML> yamlInstructions = assembler.loadYAML(inputFile);
-            Map<Integer, Integer> assembledCode = new TreeMap<>(); // TreeMap to keep addresses sorted
-            Map<Integer, String> descriptions = new TreeMap<>();
+            MicroAssembler assembler = new MicroAssembler(MachineDescription.load(NEXT_ADDRESS_SHIFT));
+            assembler.build(inputFile, outputFile, outputLogisimImageFile, cacheFile);
 
-            System.out.println("Assembling microcode...\n");
+        } catch (NoSuchFileException e) {
+            System.err.println("Error: YAML input file not found: " + inputFile);
+        } catch (Exception e) {
+            System.err.println("An error occurred during assembly:");
+            e.printStackTrace();
+        }
+    }
 
-            for (MicroInstructionYAML yamlInstr : yamlInstructions) {
-                int address = Integer.parseInt(yamlInstr.address.substring(2), 16);
-                if (address < 0 || address > MAX_ADDRESS) {
-                    System.err.println("Error: Address " + yamlInstr.address + " is out of range for instruction: " + yamlInstr.description);
-                    return;
-                }
-                if (assembledCode.containsKey(address)) {
-                    System.err.println("Error: Duplicate address " + yamlInstr.address + " for instruction: " + yamlInstr.description);
-                    return;
-                }
+    // Assembles inputFile into both outputs unless the cache says they are up to date.
+    // Returns false if assembly failed; the cache is invalidated before anything is written,
+    // so a failed or partial build is never reported as up to date.
+    public boolean build(String inputFile, String outputFile, String outputLogisimImageFile, String cacheFile) throws IOException {
+        // Skip assembly entirely if the source, the assembler and SnakeYAML code and machine description are unchanged
+        byte[] source = Files.readAllBytes(Paths.get(inputFile));
+        String cacheKey = cacheKey(source);
+        BuildCache cache = new BuildCache(cacheFile);
+        if (cache.isUpToDate(cacheKey, outputFile, outputLogisimImageFile)) {
+            System.out.println("Microcode is up to date, nothing to assemble.");
+            return true;
+        }
+        cache.invalidate();
 
-                int binaryInstruction = assembler.assembleInstruction(yamlInstr);
-                assembledCode.put(address, binaryInstruction);
-                descriptions.put(address, yamlInstr.description != null ? yamlInstr.description : "N/A");
-            }
+        List<MicroInstructionYAML> yamlInstructions = loadYAML(new UnicodeReader(new ByteArrayInputStream(source)));
+        Map<Integer, Long> assembledCode = new TreeMap<>(); // TreeMap to keep addresses sorted
+        Map<Integer, String> descriptions = new TreeMap<>();
 
-            assembler.printToConsole(assembledCode, descriptions);
-            assembler.writeBinary(outputFile, assembledCode);
-            assembler.writeLogisimImage(outputLogisimImageFile, assembledCode);
+        System.out.println("Assembling microcode...\n");
 
-            System.out.println("\nAssembly complete. Output written to " + outputFile);
+        for (MicroInstructionYAML yamlInstr : yamlInstructions) {
+            int address = Integer.parseInt(yamlInstr.address.substring(2), 16);
+            if (address < 0 || address > maxAddress) {
+                System.err.println("Error: Address " + yamlInstr.address + " is out of range for instruction: " + yamlInstr.description);
+                return false;
+            }
+            if (assembledCode.containsKey(address)) {
+                System.err.println("Error: Duplicate address " + yamlInstr.address + " for instruction: " + yamlInstr.description);
+                return false;
+            }
 
-        } catch (FileNotFoundException e) {
-            System.err.println("Error: YAML input file not found: " + inputFile);
-        } catch (Exception e) {
-            System.err.println("An error occurred during assembly:");
-            e.printStackTrace();
+            long binaryInstruction = assembleInstruction(yamlInstr);
+            assembledCode.put(address, binaryInstruction);
+            descriptions.put(address, yamlInstr.description != null ? yamlInstr.description : "N/A");
         }
+
+        printToConsole(assembledCode, descriptions);
+        writeBinary(outputFile, assembledCode);
+        writeLogisimImage(outputLogisimImageFile, assembledCode);
+        cache.store(cacheKey, outputFile, outputLogisimImageFile);
+
+        System.out.println("\nAssembly complete. Output written to " + outputFile);
+        return true;
+    }
+
+    public List<MicroInstructionYAML> loadYAML(Reader reader) {
+        return new MicroInstructionYAMLReader(reader).read();
     }
 
-    @SuppressWarnings("unchecked") // For SnakeYAML's raw list of maps
-    public List<MicroInstructionYAML> loadYAML(String filePath) throws FileNotFoundException {
-        Yaml yaml = new Yaml();
-        InputStream inputStream = new FileInputStream(filePath);
-        List<Map<String, Object>> rawList = yaml.load(inputStream);
-        List<MicroInstructionYAML> instructions = new ArrayList<>();
-
-        for (Map<String, Object> rawInstr : rawList) {
-            MicroInstructionYAML instr = new MicroInstructionYAML();
-            instr.description = (String) rawInstr.get("description");
-            instr.address = (String) rawInstr.get("address");
-            instr.bBus = (String) rawInstr.get("bBus");
-            instr.writeTo = (List<String>) rawInstr.get("writeTo");
-            instr.operation = (String) rawInstr.get("operation");
-            instr.memoryAction = (String) rawInstr.get("memoryAction");
-            instr.next = (String) rawInstr.get("next");
-            instr.jZ = rawInstr.containsKey("jz") ? (Boolean) rawInstr.get("jz") : false;
-            instructions.add(instr);
+    // Covers everything that determines the assembled output: the YAML source, the bytecode of this class
+    // (encoding tables, bit positions, output formats), of the reader, of MachineDescription (ROM size and
+    // word layout) together with its values, and the SnakeYAML parser the reader is built on
+    public String cacheKey(byte[] source) throws IOException {
+        return BuildCache.hash(
+                source,
+                classBytes(MicroAssembler.class),
+                classBytes(MicroInstructionYAMLReader.class),
+                classBytes(MachineDescription.class),
+                machine.toString().getBytes(StandardCharsets.UTF_8),
+                snakeYamlBytes());
+    }
+
+    // The whole SnakeYAML jar when it is on the class path as a file (so any version change counts),
+    // otherwise the class files of the parser, scanner, reader and resolver the YAML reader relies on
+    private static byte[] snakeYamlBytes() throws IOException {
+        CodeSource codeSource = ParserImpl.class.getProtectionDomain().getCodeSource();
+        if (codeSource != null) {
+            try {
+                Path jar = Paths.get(codeSource.getLocation().toURI());
+                if (Files.isRegularFile(jar)) {
+                    return Files.readAllBytes(jar);
+                }
+            } catch (URISyntaxException | IllegalArgumentException | FileSystemNotFoundException e) {
+                // Not a local file, fall back to the class files below
+            }
+        }
+        ByteArrayOutputStream classes = new ByteArrayOutputStream();
+        for (Class<?> type : List.of(ParserImpl.class, ScannerImpl.class, StreamReader.class, Resolver.class)) {
+            classes.write(classBytes(type));
         }
-        return instructions;
+        return classes.toByteArray();
     }
 
+    private static byte[] classBytes(Class<?> type) throws IOException {
+        try (InputStream inputStream = type.getResourceAsStream(type.getSimpleName() + ".class")) {
+            if (inputStream == null) {
+                throw new IOException("Class file of " + type.getName() + " not found");
+            }
+            return inputStream.readAllBytes();
+        }
+    }
 
-    public int assembleInstruction(MicroInstructionYAML yamlInstr) {
-        int microcodeWord = 0;
+    public long assembleInstruction(MicroInstructionYAML yamlInstr) {
+        long microcodeWord = 0;
 
         // Bits 0-7: writeTo
         boolean writeToMbr = false;
@@ -131,7 +200,7 @@ public class MicroAssembler {
 
                 Integer bitPos = WRITE_ENABLE_BITS.get(reg.toUpperCase());
                 if (bitPos != null) {
-                    microcodeWord |= (1 << bitPos);
+                    microcodeWord |= (1L << bitPos);
                 } else {
                     System.err.println("Warning: Unknown register in writeTo: " + reg + " for instruction at " + yamlInstr.address);
                 }
@@ -142,11 +211,11 @@ public class MicroAssembler {
         if (!writeToMbr && "none".equalsIgnoreCase(yamlInstr.memoryAction)) {
             // Do nothing
         } else if (!writeToMbr && "read".equalsIgnoreCase(yamlInstr.memoryAction)) {
-            microcodeWord |= (1 << WRITE_ENABLE_BITS.get("MBR"));
+            microcodeWord |= (1L << WRITE_ENABLE_BITS.get("MBR"));
         } else if (!writeToMbr && "write".equalsIgnoreCase(yamlInstr.memoryAction)) {
-            microcodeWord |= (1 << 8);
+            microcodeWord |= (1L << 8);
         } else if (writeToMbr && "none".equalsIgnoreCase(yamlInstr.memoryAction)) {
-            microcodeWord |= (1 << 8) | (1 << WRITE_ENABLE_BITS.get("MBR"));
+            microcodeWord |= (1L << 8) | (1L << WRITE_ENABLE_BITS.get("MBR"));
         } else {
             System.err.println("Warning: Incorrect combination on write: [...mbr?...] and memoryAction");
         }
@@ -156,7 +225,7 @@ public class MicroAssembler {
         if (yamlInstr.bBus != null) {
             Integer bBusVal = B_BUS_SOURCES.get(yamlInstr.bBus.toUpperCase());
             if (bBusVal != null) {
-                microcodeWord |= (bBusVal << 9);
+                microcodeWord |= ((long) bBusVal << 9);
             } else {
                 System.err.println("Warning: Unknown bBus source: " + yamlInstr.bBus + " for instruction at " + yamlInstr.address);
             }
@@ -166,7 +235,7 @@ public class MicroAssembler {
         if (yamlInstr.operation != null) {
             Integer aluOpVal = ALU_OPERATIONS.get(yamlInstr.operation.toUpperCase());
             if (aluOpVal != null) {
-                microcodeWord |= (aluOpVal << 12);
+                microcodeWord |= ((long) aluOpVal << 12);
             } else {
                 System.err.println("Warning: Unknown ALU operation: " + yamlInstr.operation + " for instruction at " + yamlInstr.address);
             }
@@ -178,12 +247,12 @@ public class MicroAssembler {
             if ("mbr".equalsIgnoreCase(yamlInstr.next)) {
                 // J bit is 0 (default)
             } else {
-                microcodeWord |= (1 << 16); // Set J bit
+                microcodeWord |= (1L << 16); // Set J bit
                 try {
                     nextAddrVal = Integer.parseInt(yamlInstr.next.substring(2), 16);
-                    if (nextAddrVal < 0 || nextAddrVal > MAX_ADDRESS) {
+                    if (nextAddrVal < 0 || nextAddrVal > maxAddress) {
                         System.err.println("Warning: Next address " + yamlInstr.next + " out of range for instruction at " + yamlInstr.address);
-                        nextAddrVal &= MAX_ADDRESS; // Mask to 6 bits
+                        nextAddrVal &= maxAddress; // Mask to micro.addressBits
                     }
                 } catch (NumberFormatException e) {
                     System.err.println("Warning: Invalid next address format: " + yamlInstr.next + " for instruction at " + yamlInstr.address);
@@ -193,12 +262,12 @@ public class MicroAssembler {
 
         // Bit 17: JZ bit
         if (yamlInstr.jZ) {
-            microcodeWord |= (1 << 17);
+            microcodeWord |= (1L << 17);
         }
 
-        // Bits 18-23: Address of next microinstruction (if J bit is 1)
-        if ((microcodeWord & (1 << 16)) != 0) { // if J bit is set
-            microcodeWord |= (nextAddrVal << 18);
+        // Bits 18 and up (micro.addressBits wide): Address of next microinstruction (if J bit is 1)
+        if ((microcodeWord & (1L << 16)) != 0) { // if J bit is set
+            microcodeWord |= ((long) nextAddrVal << NEXT_ADDRESS_SHIFT);
         }
         // If J bit is 0, these bits effectively don't care or could be zeroed for consistency,
         // but hardware should ignore them based on J bit.
@@ -206,44 +275,77 @@ public class MicroAssembler {
         return microcodeWord;
     }
 
-    public void printToConsole(Map<Integer, Integer> assembledCode, Map<Integer, String> descriptions) {
-        System.out.println("Address | Hex Value | Binary Value                     | Description");
-        System.out.println("--------|-----------|----------------------------------|-------------");
-        for (Map.Entry<Integer, Integer> entry : assembledCode.entrySet()) {
+    public void printToConsole(Map<Integer, Long> assembledCode, Map<Integer, String> descriptions) {
+        int wordBits = machine.microWordBits;
+        int binaryWidth = Math.max(32, wordBits + (wordBits - 1) / 4);
+        int addressWidth = Math.max(7, machine.addressHexDigits() + 2);
+        int hexWidth = Math.max(9, machine.wordHexDigits() + 2);
+
+        // The whole table is built in one buffer and printed at once instead of formatting line by line
+        StringBuilder table = new StringBuilder();
+        appendRow(table, "Address", addressWidth, "Hex Value", hexWidth, "Binary Value", binaryWidth, "Description");
+        table.append("-".repeat(addressWidth + 1)).append('|').append("-".repeat(hexWidth + 2)).append('|')
+                .append("-".repeat(binaryWidth + 2)).append("|-------------").append(System.lineSeparator());
+        for (Map.Entry<Integer, Long> entry : assembledCode.entrySet()) {
             int address = entry.getKey();
-            int instruction = entry.getValue();
-            String binaryString = String.format("%24s", Integer.toBinaryString(instruction)).replace(' ', '0');
+            long instruction = entry.getValue();
+            String binaryString = Long.toBinaryString(instruction);
+            binaryString = "0".repeat(Math.max(0, wordBits - binaryString.length())) + binaryString;
             // Insert spaces for readability
             StringBuilder formattedBinary = new StringBuilder();
             for(int i=0; i < binaryString.length(); i++) {
-                if (i > 0 && i % 4 == 0) {
+                if (i > 0 && (binaryString.length() - i) % 4 == 0) {
                     formattedBinary.append(' ');
                 }
                 formattedBinary.append(binaryString.charAt(i));
             }
 
-            System.out.printf("0x%02X    | 0x%06X  | %-32s | %s%n",
-                    address,
-                    instruction,
-                    formattedBinary.toString(),
+            appendRow(table,
+                    toHex(address, machine.addressHexDigits()), addressWidth,
+                    toHex(instruction, machine.wordHexDigits()), hexWidth,
+                    formattedBinary.toString(), binaryWidth,
                     descriptions.get(address));
         }
+        System.out.print(table);
+    }
+
+    private static void appendRow(StringBuilder table, String address, int addressWidth, String hex, int hexWidth,
+                                  String binary, int binaryWidth, String description) {
+        appendPadded(table, address, addressWidth).append(" | ");
+        appendPadded(table, hex, hexWidth).append(" | ");
+        appendPadded(table, binary, binaryWidth).append(" | ");
+        table.append(description).append(System.lineSeparator());
+    }
+
+    private static StringBuilder appendPadded(StringBuilder table, String value, int width) {
+        table.append(value);
+        for (int i = value.length(); i < width; i++) {
+            table.append(' ');
+        }
+        return table;
+    }
+
+    // Same as String.format("0x%0<digits>X", value)
+    private static String toHex(long value, int digits) {
+        String hex = Long.toHexString(value).toUpperCase();
+        return "0x" + "0".repeat(Math.max(0, digits - hex.length())) + hex;
     }
 
-    public void writeBinary(String filePath, Map<Integer, Integer> assembledCode) throws IOException {
-        // We need to write a continuous block of ROM, filling unspecified addresses with 0 or a default NOP.
-        // For now, we'll just write the specified ones.
-        // To create a full ROM image, you'd iterate from 0 to MAX_ADDRESS.
-        byte[] romImage = new byte[(MAX_ADDRESS + 1) * 3]; // 3 bytes per 24-bit instruction
+    public void writeBinary(String filePath, Map<Integer, Long> assembledCode) throws IOException {
+        // Writes a continuous block of ROM (0 to maxAddress), unspecified addresses are filled with 0.
+        // Each word takes micro.wordBits / 8 bytes (rounded up), most significant byte first.
+        int bytesPerWord = machine.bytesPerWord();
+        byte[] romImage = new byte[(maxAddress + 1) * bytesPerWord];
 
-        for (Map.Entry<Integer, Integer> entry : assembledCode.entrySet()) {
+        for (Map.Entry<Integer, Long> entry : assembledCode.entrySet()) {
             int address = entry.getKey();
-            int instruction = entry.getValue();
-            int offset = address * 3;
+            long instruction = entry.getValue();
+            int offset = address * bytesPerWord;
 
-            romImage[offset]     = (byte) ((instruction >> 16) & 0xFF); // MSB
-            romImage[offset + 1] = (byte) ((instruction >> 8) & 0xFF);
-            romImage[offset + 2] = (byte) (instruction & 0xFF);        // LSB
+            for (int i = bytesPerWord - 1; i >= 0; i--) { // LSB goes last
+                romImage[offset + i] = (byte) (instruction & 0xFF);
+                instruction >>>= 8;
+            }
         }
 
         try (FileOutputStream fos = new FileOutputStream(filePath)) {
@@ -251,35 +353,26 @@ public class MicroAssembler {
         }
     }
 
-    public void writeLogisimImage(String filePath, Map<Integer, Integer> assembledCode) throws IOException {
-        List<String> hexWords = new ArrayList<>();
-        int lastNonZeroInstructionAddress = -1;
-
-        // Prepare all words, find the last non-zero one
-        for (int i = 0; i <= MAX_ADDRESS; i++) {
-            int instruction = assembledCode.getOrDefault(i, 0);
-            // Convert to hex, Integer.toHexString() naturally strips leading zeros except for "0"
-            String hexWord = Integer.toHexString(instruction);
-            hexWords.add(hexWord);
-            if (instruction != 0) {
-                lastNonZeroInstructionAddress = i;
-            }
-        }
-
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+    public void writeLogisimImage(String filePath, Map<Integer, Long> assembledCode) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new FileWriter(filePath)))) {
             writer.print("v2.0 raw\n"); // Logisim header
 
+            // Logisim zero-fills everything after the last written word, so stop at the last non-zero instruction
+            int lastNonZeroInstructionAddress = -1;
+            for (Map.Entry<Integer, Long> entry : assembledCode.entrySet()) {
+                if (entry.getValue() != 0) {
+                    lastNonZeroInstructionAddress = entry.getKey();
+                }
+            }
+
             if (lastNonZeroInstructionAddress == -1) {
                 // If all instructions are zero (or no instructions defined),
                 // Logisim expects a "0" if the ROM is meant to be non-empty but all zeros.
-                // If the YAML was completely empty, an empty data line might be okay,
-                // but "0" is safer for an initialized ROM.
-                if (MAX_ADDRESS >= 0) { // Ensure there's at least one potential address
-                    writer.print("0");
-                }
+                writer.print("0");
             } else {
                 for (int i = 0; i <= lastNonZeroInstructionAddress; i++) {
-                    writer.print(hexWords.get(i));
+                    // Long.toHexString() naturally strips leading zeros except for "0"
+                    writer.print(Long.toHexString(assembledCode.getOrDefault(i, 0L)));
                     if (i < lastNonZeroInstructionAddress) {
                         writer.print(" ");
                     }
@@ -289,4 +382,3 @@ public class MicroAssembler {
         }
     }
 }
-
@@ -0,0 +1,281 @@
+package io.github.danielreker;
+
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.parser.Parser;
+import org.yaml.snakeyaml.parser.ParserImpl;
+import org.yaml.snakeyaml.reader.StreamReader;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.Reader;
+import java.util.*;
+
+// Reads microcode.yaml from SnakeYAML's event stream straight into MicroInstructionYAML,
+// without building the generic List<Map<String, Object>> tree.
+// Anchors are kept as the recorded events of their node and replayed in place of each alias,
+// and "<<" merge keys follow SnakeYAML: explicit keys win, and earlier merges win over later ones.
+public class MicroInstructionYAMLReader {
+
+    private static final String MERGE_KEY = "<<";
+    // Resolves plain scalars exactly like SnakeYAML's loader (e.g. "Null" is null, "NuLL" is a string)
+    private static final Resolver RESOLVER = new Resolver();
+
+    private final Parser parser;
+    private final Deque<Event> replay = new ArrayDeque<>(); // Events of an alias being expanded
+    private final Map<String, List<Event>> anchors = new HashMap<>();
+    private final List<AnchorRecorder> recorders = new ArrayList<>();
+
+    // Collects the events of an anchored node until the node is complete
+    private static class AnchorRecorder {
+        final String anchor;
+        final List<Event> events = new ArrayList<>();
+        int depth = 0;
+
+        AnchorRecorder(String anchor) {
+            this.anchor = anchor;
+        }
+    }
+
+    public MicroInstructionYAMLReader(Reader reader) {
+        this.parser = new ParserImpl(new StreamReader(reader), new LoaderOptions());
+    }
+
+    // Expects a single document holding a sequence of mappings, one per microinstruction.
+    // A second document is an error, as with Yaml.load, instead of being silently dropped.
+    public List<MicroInstructionYAML> read() {
+        List<MicroInstructionYAML> instructions = new ArrayList<>();
+
+        expect(Event.ID.StreamStart);
+        if (checkEvent(Event.ID.StreamEnd)) { // Empty file
+            return instructions;
+        }
+        expect(Event.ID.DocumentStart);
+        if (checkEvent(Event.ID.SequenceStart)) {
+            getEvent();
+            while (!checkEvent(Event.ID.SequenceEnd)) {
+                instructions.add(readInstruction(new HashSet<>()));
+            }
+            getEvent();
+        } else if (!isNull(peekEvent())) {
+            throw error("Expected a list of microinstructions", peekEvent());
+        } else {
+            getEvent();
+        }
+        expect(Event.ID.DocumentEnd);
+        if (!checkEvent(Event.ID.StreamEnd)) {
+            throw error("Expected a single document, but found another", peekEvent());
+        }
+        return instructions;
+    }
+
+    // Reads one mapping; the keys it defines (directly or through merges) are added to assigned
+    private MicroInstructionYAML readInstruction(Set<String> assigned) {
+        expect(Event.ID.MappingStart);
+        MicroInstructionYAML instr = new MicroInstructionYAML();
+
+        while (!checkEvent(Event.ID.MappingEnd)) {
+            ScalarEvent keyEvent = expectScalar();
+            String key = keyEvent.getValue();
+            if (key.equals(MERGE_KEY) && keyEvent.isPlain()) {
+                readMerge(instr, assigned);
+                continue;
+            }
+            switch (key) {
+                case "description" -> instr.description = readString();
+                case "address" -> instr.address = readString();
+                case "bBus" -> instr.bBus = readString();
+                case "writeTo" -> instr.writeTo = readStringList();
+                case "operation" -> instr.operation = readString();
+                case "memoryAction" -> instr.memoryAction = readString();
+                case "next" -> instr.next = readString();
+                case "jz" -> instr.jZ = readBoolean();
+                default -> {
+                    System.err.println("Warning: Unknown key '" + key + "' ignored in microcode YAML" + keyEvent.getStartMark());
+                    skipNode();
+                    continue;
+                }
+            }
+            assigned.add(key);
+        }
+        getEvent();
+        return instr;
+    }
+
+    // "<<: *a" or "<<: [*a, *b]"; merged keys only fill fields the mapping has not assigned yet
+    private void readMerge(MicroInstructionYAML instr, Set<String> assigned) {
+        if (checkEvent(Event.ID.MappingStart)) {
+            mergeInto(instr, assigned);
+        } else if (checkEvent(Event.ID.SequenceStart)) {
+            getEvent();
+            while (!checkEvent(Event.ID.SequenceEnd)) {
+                if (!checkEvent(Event.ID.MappingStart)) {
+                    throw error("Expected a mapping to merge", peekEvent());
+                }
+                mergeInto(instr, assigned);
+            }
+            getEvent();
+        } else {
+            throw error("Expected a mapping or a list of mappings to merge", peekEvent());
+        }
+    }
+
+    private void mergeInto(MicroInstructionYAML instr, Set<String> assigned) {
+        Set<String> mergedKeys = new HashSet<>();
+        MicroInstructionYAML merged = readInstruction(mergedKeys);
+        for (String key : mergedKeys) {
+            if (assigned.add(key)) {
+                copyField(key, merged, instr);
+            }
+        }
+    }
+
+    private static void copyField(String key, MicroInstructionYAML from, MicroInstructionYAML to) {
+        switch (key) {
+            case "description" -> to.description = from.description;
+            case "address" -> to.address = from.address;
+            case "bBus" -> to.bBus = from.bBus;
+            case "writeTo" -> to.writeTo = from.writeTo;
+            case "operation" -> to.operation = from.operation;
+            case "memoryAction" -> to.memoryAction = from.memoryAction;
+            case "next" -> to.next = from.next;
+            case "jz" -> to.jZ = from.jZ;
+            default -> throw new IllegalStateException("Unexpected key " + key);
+        }
+    }
+
+    private String readString() {
+        ScalarEvent scalar = expectScalar();
+        return isNull(scalar) ? null : scalar.getValue();
+    }
+
+    private List<String> readStringList() {
+        if (isNull(peekEvent())) {
+            getEvent();
+            return null;
+        }
+        expect(Event.ID.SequenceStart);
+        List<String> values = new ArrayList<>();
+        while (!checkEvent(Event.ID.SequenceEnd)) {
+            values.add(readString());
+        }
+        getEvent();
+        return values;
+    }
+
+    // Accepts the YAML 1.1 boolean forms SnakeYAML resolves (true/false, yes/no, on/off in lower, title or upper case)
+    private boolean readBoolean() {
+        ScalarEvent scalar = expectScalar();
+        if (isNull(scalar)) {
+            return false;
+        }
+        if (!Tag.BOOL.equals(resolvePlain(scalar))) {
+            throw error("Expected a boolean, got '" + scalar.getValue() + "'", scalar);
+        }
+        return switch (scalar.getValue().toLowerCase()) {
+            case "true", "yes", "on" -> true;
+            case "false", "no", "off" -> false;
+            default -> throw error("Expected a boolean, got '" + scalar.getValue() + "'", scalar);
+        };
+    }
+
+    private void skipNode() {
+        int depth = 0;
+        do {
+            Event event = getEvent();
+            if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+                depth++;
+            } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    // Next event with aliases already expanded
+    private Event peekEvent() {
+        while (replay.isEmpty() && parser.peekEvent() instanceof AliasEvent alias) {
+            parser.getEvent();
+            List<Event> events = anchors.get(alias.getAnchor());
+            if (events == null) {
+                throw error("Undefined alias *" + alias.getAnchor(), alias);
+            }
+            replay.addAll(events);
+        }
+        return replay.isEmpty() ? parser.peekEvent() : replay.peek();
+    }
+
+    private boolean checkEvent(Event.ID id) {
+        return peekEvent().is(id);
+    }
+
+    private Event getEvent() {
+        peekEvent(); // Expands a pending alias
+        boolean replayed = !replay.isEmpty();
+        Event event = replayed ? replay.poll() : parser.getEvent();
+
+        for (Iterator<AnchorRecorder> it = recorders.iterator(); it.hasNext(); ) {
+            AnchorRecorder recorder = it.next();
+            if (record(recorder, event)) {
+                anchors.put(recorder.anchor, recorder.events);
+                it.remove();
+            }
+        }
+        // Anchors inside replayed events were registered when first read and must not be redefined
+        if (!replayed && event instanceof NodeEvent node && node.getAnchor() != null) {
+            AnchorRecorder recorder = new AnchorRecorder(node.getAnchor());
+            if (record(recorder, event)) {
+                anchors.put(recorder.anchor, recorder.events);
+            } else {
+                recorders.add(recorder);
+            }
+        }
+        return event;
+    }
+
+    // Returns true once the recorded node is complete
+    private static boolean record(AnchorRecorder recorder, Event event) {
+        recorder.events.add(event);
+        if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+            recorder.depth++;
+        } else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+            recorder.depth--;
+        }
+        return recorder.depth == 0;
+    }
+
+    // Plain empty, "~", "null", "Null" and "NULL" scalars are YAML nulls; quoted ones are strings
+    private static boolean isNull(Event event) {
+        return event instanceof ScalarEvent scalar && Tag.NULL.equals(resolvePlain(scalar));
+    }
+
+    // Implicit tag of an untagged plain scalar, or null for quoted or explicitly tagged scalars
+    private static Tag resolvePlain(ScalarEvent scalar) {
+        if (!scalar.isPlain() || !scalar.getImplicit().canOmitTagInPlainScalar()) {
+            return null;
+        }
+        return RESOLVER.resolve(NodeId.scalar, scalar.getValue(), true);
+    }
+
+    private ScalarEvent expectScalar() {
+        Event event = getEvent();
+        if (!(event instanceof ScalarEvent scalar)) {
+            throw error("Expected a scalar value", event);
+        }
+        return scalar;
+    }
+
+    private void expect(Event.ID id) {
+        Event event = getEvent();
+        if (!event.is(id)) {
+            throw error("Expected " + id, event);
+        }
+    }
+
+    private static IllegalArgumentException error(String message, Event event) {
+        return new IllegalArgumentException(message + " in microcode YAML" + event.getStartMark());
+    }
+}
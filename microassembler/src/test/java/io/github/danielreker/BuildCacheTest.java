@@ -0,0 +1,142 @@
+package io.github.danielreker;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private BuildCache cache() {
+        return new BuildCache(dir.resolve("microcode.cache").toString());
+    }
+
+    private String output(String name, String content) throws IOException {
+        Path path = dir.resolve(name);
+        Files.writeString(path, content);
+        return path.toString();
+    }
+
+    @Test
+    void upToDateAfterStore() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        String image = output("microcode.logisimimg", "image");
+        cache().store("key", bin, image);
+
+        assertTrue(cache().isUpToDate("key", bin, image));
+    }
+
+    @Test
+    void notUpToDateWithoutCacheFile() throws IOException {
+        String bin = output("microcode.bin", "bin");
+
+        assertFalse(cache().isUpToDate("key", bin));
+    }
+
+    @Test
+    void keyMismatch() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        cache().store("key", bin);
+
+        assertFalse(cache().isUpToDate("other", bin));
+    }
+
+    @Test
+    void missingOutput() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        String image = output("microcode.logisimimg", "image");
+        cache().store("key", bin, image);
+        Files.delete(Path.of(image));
+
+        assertFalse(cache().isUpToDate("key", bin, image));
+    }
+
+    @Test
+    void editedOutput() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        cache().store("key", bin);
+        output("microcode.bin", "edited");
+
+        assertFalse(cache().isUpToDate("key", bin));
+    }
+
+    @Test
+    void differentOutputList() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        String image = output("microcode.logisimimg", "image");
+        cache().store("key", bin);
+
+        assertFalse(cache().isUpToDate("key", bin, image));
+    }
+
+    @Test
+    void invalidateDropsStoredBuild() throws IOException {
+        String bin = output("microcode.bin", "bin");
+        cache().store("key", bin);
+        cache().invalidate();
+
+        assertFalse(Files.exists(dir.resolve("microcode.cache")));
+        assertFalse(cache().isUpToDate("key", bin));
+    }
+
+    @Test
+    void invalidateWithoutCacheFile() throws IOException {
+        cache().invalidate();
+
+        assertFalse(Files.exists(dir.resolve("microcode.cache")));
+    }
+
+    private boolean build(MicroAssembler assembler, String yamlText) throws IOException {
+        Files.writeString(dir.resolve("microcode.yaml"), yamlText);
+        return assembler.build(dir.resolve("microcode.yaml").toString(), dir.resolve("microcode.bin").toString(),
+                dir.resolve("microcode.logisimimg").toString(), dir.resolve("microcode.cache").toString());
+    }
+
+    @Test
+    void buildStoresAndReusesCache() throws IOException {
+        MicroAssembler assembler = new MicroAssembler();
+        String yamlText = "- {address: '0x0', bBus: pc, writeTo: [pc, mar], operation: bPlus1, memoryAction: read, next: mbr}\n";
+        assertTrue(build(assembler, yamlText));
+        byte[] bin = Files.readAllBytes(dir.resolve("microcode.bin"));
+        assertTrue(Files.exists(dir.resolve("microcode.cache")));
+
+        assertTrue(build(assembler, yamlText));
+        assertArrayEquals(bin, Files.readAllBytes(dir.resolve("microcode.bin")));
+    }
+
+    // build() invalidates the cache before writing, so a failed build is never reported as up to date
+    @Test
+    void failedBuildIsNeverUpToDate() throws IOException {
+        MicroAssembler assembler = new MicroAssembler();
+        String good = "- {address: '0x0', bBus: a, operation: a, memoryAction: none, next: '0x0'}\n";
+        assertTrue(build(assembler, good));
+
+        // Duplicate address: the build fails after the cache check, leaving the old outputs in place
+        String bad = good + "- {address: '0x0', bBus: b, operation: b, memoryAction: none, next: '0x0'}\n";
+        assertFalse(build(assembler, bad));
+        assertFalse(Files.exists(dir.resolve("microcode.cache")));
+
+        String key = assembler.cacheKey(good.getBytes());
+        assertFalse(cache().isUpToDate(key, dir.resolve("microcode.bin").toString(), dir.resolve("microcode.logisimimg").toString()));
+        assertTrue(build(assembler, good));
+        assertTrue(Files.exists(dir.resolve("microcode.cache")));
+    }
+
+    @Test
+    void hashSeparatesParts() {
+        byte[] ab = "ab".getBytes();
+        byte[] c = "c".getBytes();
+        byte[] a = "a".getBytes();
+        byte[] bc = "bc".getBytes();
+
+        assertEquals(BuildCache.hash(ab, c), BuildCache.hash(ab, c));
+        assertNotEquals(BuildCache.hash(ab, c), BuildCache.hash(a, bc));
+    }
+}
@@ -0,0 +1,185 @@
+package io.github.danielreker;
+
+import org.junit.jupiter.api.Test;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroInstructionYAMLReaderTest {
+
+    // The SnakeYAML map-based loading the reader replaces
+    @SuppressWarnings("unchecked")
+    private static List<MicroInstructionYAML> loadWithSnakeYaml(String yamlText) {
+        List<Map<String, Object>> rawList = new Yaml().load(yamlText);
+        List<MicroInstructionYAML> instructions = new ArrayList<>();
+        for (Map<String, Object> rawInstr : rawList) {
+            MicroInstructionYAML instr = new MicroInstructionYAML();
+            instr.description = (String) rawInstr.get("description");
+            instr.address = (String) rawInstr.get("address");
+            instr.bBus = (String) rawInstr.get("bBus");
+            instr.writeTo = (List<String>) rawInstr.get("writeTo");
+            instr.operation = (String) rawInstr.get("operation");
+            instr.memoryAction = (String) rawInstr.get("memoryAction");
+            instr.next = (String) rawInstr.get("next");
+            instr.jZ = rawInstr.containsKey("jz") ? (Boolean) rawInstr.get("jz") : false;
+            instructions.add(instr);
+        }
+        return instructions;
+    }
+
+    private static List<MicroInstructionYAML> read(String yamlText) {
+        return new MicroInstructionYAMLReader(new StringReader(yamlText)).read();
+    }
+
+    private static void assertSameAsSnakeYaml(String yamlText) {
+        assertEquals(loadWithSnakeYaml(yamlText).toString(), read(yamlText).toString());
+    }
+
+    @Test
+    void shippedMicrocode() throws IOException {
+        String yamlText = Files.readString(Paths.get("microcode.yaml"));
+        List<MicroInstructionYAML> instructions = read(yamlText);
+        assertFalse(instructions.isEmpty());
+        assertEquals(loadWithSnakeYaml(yamlText).toString(), instructions.toString());
+    }
+
+    @Test
+    void mergeKeyCopiesAnchoredFields() {
+        String yamlText = """
+                - &fetch
+                  description: Fetch
+                  address: '0x0'
+                  bBus: pc
+                  writeTo: [pc, mar]
+                  operation: bPlus1
+                  memoryAction: read
+                  next: mbr
+                  jz: false
+                - <<: *fetch
+                  address: '0x1'
+                """;
+        assertSameAsSnakeYaml(yamlText);
+
+        MicroInstructionYAML copy = read(yamlText).get(1);
+        assertEquals("0x1", copy.address);
+        assertEquals("pc", copy.bBus);
+        assertEquals(List.of("pc", "mar"), copy.writeTo);
+        assertEquals(0x003607L, new MicroAssembler().assembleInstruction(copy));
+    }
+
+    @Test
+    void explicitKeysWinOverMergeInAnyOrder() {
+        assertSameAsSnakeYaml("""
+                - &base {address: '0x0', bBus: a, operation: a, next: '0x0', jz: true}
+                - address: '0x1'
+                  bBus: b
+                  <<: *base
+                  jz: false
+                """);
+    }
+
+    @Test
+    void earlierMergeWinsInMergeList() {
+        assertSameAsSnakeYaml("""
+                - &a {address: '0x0', bBus: a, operation: a}
+                - &b {address: '0x1', bBus: b, operation: b, memoryAction: read}
+                - <<: [*a, *b]
+                  address: '0x2'
+                """);
+    }
+
+    @Test
+    void nestedMerge() {
+        assertSameAsSnakeYaml("""
+                - &a {address: '0x0', bBus: a, operation: a}
+                - &b
+                  <<: *a
+                  address: '0x1'
+                  operation: b
+                - <<: *b
+                  address: '0x2'
+                """);
+    }
+
+    @Test
+    void aliasesAsValuesAndEntries() {
+        assertSameAsSnakeYaml("""
+                - description: &d Shared description
+                  address: '0x0'
+                  writeTo: &regs [a, b]
+                  next: &n '0x3'
+                - description: *d
+                  address: '0x1'
+                  writeTo: *regs
+                  next: *n
+                - &whole {address: '0x2', bBus: sp}
+                - *whole
+                """);
+    }
+
+    @Test
+    void nullValues() {
+        assertSameAsSnakeYaml("""
+                - description:
+                  address: '0x0'
+                  bBus: ~
+                  writeTo: null
+                  operation: 'null'
+                  memoryAction: ""
+                  next: Null
+                - description: NuLL
+                  address: NULL
+                  bBus: nULL
+                """);
+    }
+
+    @Test
+    void booleanForms() {
+        assertSameAsSnakeYaml("""
+                - {address: '0x0', jz: true}
+                - {address: '0x1', jz: False}
+                - {address: '0x2', jz: yes}
+                - {address: '0x3', jz: NO}
+                - {address: '0x4', jz: on}
+                - {address: '0x5', jz: Off}
+                - {address: '0x6'}
+                """);
+        assertThrows(IllegalArgumentException.class, () -> read("- {address: '0x0', jz: '1'}"));
+        assertThrows(IllegalArgumentException.class, () -> read("- {address: '0x0', jz: 'true'}"));
+        assertThrows(IllegalArgumentException.class, () -> read("- {address: '0x0', jz: TrUe}"));
+    }
+
+    @Test
+    void unknownKeysAreSkipped() {
+        assertSameAsSnakeYaml("""
+                - address: '0x0'
+                  comment: {nested: [1, 2, {deep: x}]}
+                  bBus: mar
+                """);
+    }
+
+    @Test
+    void undefinedAliasFails() {
+        assertThrows(IllegalArgumentException.class, () -> read("- {address: '0x0', bBus: *missing}"));
+    }
+
+    @Test
+    void emptyDocument() {
+        assertTrue(read("").isEmpty());
+    }
+
+    @Test
+    void secondDocumentFails() {
+        String yamlText = "- {address: '0x0'}\n---\n- {address: '0x1'}\n";
+        assertThrows(RuntimeException.class, () -> loadWithSnakeYaml(yamlText));
+        assertThrows(IllegalArgumentException.class, () -> read(yamlText));
+    }
+}